@@ -3,6 +3,8 @@ package com.example;
 import com.example.model.Reservation;
 import com.example.model.Salle;
 import com.example.model.Utilisateur;
+import com.example.profiling.ProfilingReservationService;
+import com.example.profiling.QueryProfiler;
 import com.example.service.ReservationService;
 import com.example.service.ReservationServiceImpl;
 
@@ -10,31 +12,86 @@ import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
 import javax.persistence.OptimisticLockException;
 import javax.persistence.Persistence;
+import org.hibernate.SessionFactory;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.UUID;
 import java.util.concurrent.CountDownLatch;
 
 public class ConcurrentReservationSimulator {
 
-    private static final EntityManagerFactory emf =
-            Persistence.createEntityManagerFactory("optimistic-locking-demo");
-    private static final ReservationService reservationService = new ReservationServiceImpl(emf);
+    private static final long startNanos = System.nanoTime();
+
+    // Mode profilage : -Dreservation.profiling=true [-Dreservation.profiling.slowQueryMs=50]
+    private static final QueryProfiler profiler = Boolean.getBoolean("reservation.profiling")
+            ? new QueryProfiler(Long.getLong("reservation.profiling.slowQueryMs", 50L))
+            : null;
+
+    private static final EntityManagerFactory emf = createEntityManagerFactory();
+    private static final ReservationService reservationService = profiler != null
+            ? new ProfilingReservationService(new ReservationServiceImpl(emf), profiler)
+            : new ReservationServiceImpl(emf);
+    // Fenêtre courte (5 x 500 ms) pour observer aussi le retour en optimiste
+    private static final ContentionDetector contentionDetector = new ContentionDetector(5, 500, 3, 1);
+
+    private static EntityManagerFactory createEntityManagerFactory() {
+        Map<String, Object> properties = new HashMap<>();
+        if (profiler != null) {
+            properties.putAll(profiler.hibernateProperties());
+        }
+        return Persistence.createEntityManagerFactory("optimistic-locking-demo", properties);
+    }
 
     public static void main(String[] args) throws InterruptedException {
         try {
+            // Phase de chauffe avant de traiter les réservations. Service non décoré : la chauffe
+            // n'entre pas dans le profil.
+            StartupWarmUp warmUp = new StartupWarmUp(emf, new ReservationServiceImpl(emf), startNanos);
+            warmUp.warmUp();
+            warmUp.printReport(System.out);
+
+            if (profiler != null) {
+                profiler.reset();
+                emf.unwrap(SessionFactory.class).getStatistics().clear();
+            }
+
             // Initialisation des données
-            initData();
+            Long reservationId = initData();
 
             // Simulation d'un conflit de réservation concurrent sans retry
             System.out.println("\n=== Simulation d'un conflit sans retry ===");
-            simulateConcurrentReservationConflict();
+            simulateConcurrentReservationConflict(reservationId);
 
             // Réinitialisation des données
-            initData();
+            reservationId = initData();
 
             // Simulation d'un conflit de réservation concurrent avec retry
             System.out.println("\n=== Simulation d'un conflit avec retry ===");
-            simulateConcurrentReservationConflictWithRetry();
+            simulateConcurrentReservationConflictWithRetry(reservationId);
+
+            // Réinitialisation des données
+            reservationId = initData();
+
+            // Simulation d'une réservation très disputée (bascule en verrouillage pessimiste)
+            System.out.println("\n=== Simulation d'une réservation chaude ===");
+            simulateHotReservationContention(reservationId);
+            contentionDetector.printMetrics(System.out);
+
+            // Sans nouvelles modifications, les entités chaudes refroidissent
+            Thread.sleep(3000);
+            contentionDetector.printMetrics(System.out);
+
+            // Simulation d'un client qui renvoie sa réservation après un timeout
+            System.out.println("\n=== Simulation d'une requête rejouée (clé d'idempotence) ===");
+            simulateIdempotentRetry(reservationId);
+
+            if (profiler != null) {
+                profiler.printSummary(System.out, emf.unwrap(SessionFactory.class).getStatistics());
+            }
 
         } finally {
             // Fermeture de l'EntityManagerFactory
@@ -42,12 +99,13 @@ public class ConcurrentReservationSimulator {
         }
     }
 
-    private static void initData() {
+    private static Long initData() {
         EntityManager em = emf.createEntityManager();
         try {
             em.getTransaction().begin();
 
             // Nettoyer les données existantes
+            em.createQuery("DELETE FROM CleIdempotence").executeUpdate();
             em.createQuery("DELETE FROM Reservation").executeUpdate();
             em.createQuery("DELETE FROM Utilisateur").executeUpdate();
             em.createQuery("DELETE FROM Salle").executeUpdate();
@@ -80,20 +138,22 @@ public class ConcurrentReservationSimulator {
 
             System.out.println("Données initialisées avec succès !");
             System.out.println("Réservation créée avec ID: " + reservation.getId());
+            return reservation.getId();
 
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
             }
             e.printStackTrace();
+            return null;
         } finally {
             em.close();
         }
     }
 
-    private static void simulateConcurrentReservationConflict() throws InterruptedException {
-        // Récupération de la réservation (ID 1 car on a tout supprimé et recréé)
-        Optional<Reservation> reservationOpt = reservationService.findById(1L);
+    private static void simulateConcurrentReservationConflict(Long reservationId) throws InterruptedException {
+        // Récupération de la réservation (l'ID change à chaque réinitialisation)
+        Optional<Reservation> reservationOpt = reservationService.findById(reservationId);
         if (!reservationOpt.isPresent()) {
             System.out.println("Réservation non trouvée !");
             return;
@@ -111,7 +171,7 @@ public class ConcurrentReservationSimulator {
                 latch.await();
 
                 // Premier thread : modification du motif
-                Reservation r1 = reservationService.findById(1L).get();
+                Reservation r1 = reservationService.findById(reservationId).get();
                 System.out.println("Thread 1 : Réservation récupérée, version = " + r1.getVersion());
 
                 // Simuler un traitement long
@@ -135,7 +195,7 @@ public class ConcurrentReservationSimulator {
                 latch.await();
 
                 // Deuxième thread : modification des dates
-                Reservation r2 = reservationService.findById(1L).get();
+                Reservation r2 = reservationService.findById(reservationId).get();
                 System.out.println("Thread 2 : Réservation récupérée, version = " + r2.getVersion());
 
                 // Modification immédiate
@@ -165,7 +225,7 @@ public class ConcurrentReservationSimulator {
         thread2.join();
 
         // Vérification de l'état final de la réservation
-        Optional<Reservation> finalReservationOpt = reservationService.findById(1L);
+        Optional<Reservation> finalReservationOpt = reservationService.findById(reservationId);
         finalReservationOpt.ifPresent(r -> {
             System.out.println("\nÉtat final de la réservation :");
             System.out.println("ID : " + r.getId());
@@ -176,9 +236,10 @@ public class ConcurrentReservationSimulator {
         });
     }
 
-    private static void simulateConcurrentReservationConflictWithRetry() throws InterruptedException {
+    private static void simulateConcurrentReservationConflictWithRetry(Long reservationId) throws InterruptedException {
         // Création du handler avec 3 tentatives maximum
-        OptimisticLockingRetryHandler retryHandler = new OptimisticLockingRetryHandler(reservationService, 3);
+        OptimisticLockingRetryHandler retryHandler =
+                new OptimisticLockingRetryHandler(reservationService, 3, contentionDetector);
 
         // Création de deux threads qui vont modifier la même réservation
         CountDownLatch latch = new CountDownLatch(1);
@@ -189,7 +250,7 @@ public class ConcurrentReservationSimulator {
                 latch.await();
 
                 // Premier thread : modification du motif avec retry
-                boolean success = retryHandler.executeWithRetry(1L, r -> {
+                boolean success = retryHandler.executeWithRetry(reservationId, r -> {
                     System.out.println("Thread 1 : Modification du motif");
                     r.setMotif("Réunion d'équipe modifiée par Thread 1");
 
@@ -215,7 +276,7 @@ public class ConcurrentReservationSimulator {
                 latch.await();
 
                 // Deuxième thread : modification des dates avec retry
-                boolean success = retryHandler.executeWithRetry(1L, r -> {
+                boolean success = retryHandler.executeWithRetry(reservationId, r -> {
                     System.out.println("Thread 2 : Modification des dates");
                     r.setDateDebut(r.getDateDebut().plusHours(1));
                     r.setDateFin(r.getDateFin().plusHours(1));
@@ -241,7 +302,7 @@ public class ConcurrentReservationSimulator {
         thread2.join();
 
         // Vérification de l'état final de la réservation
-        Optional<Reservation> finalReservationOpt = reservationService.findById(1L);
+        Optional<Reservation> finalReservationOpt = reservationService.findById(reservationId);
         finalReservationOpt.ifPresent(r -> {
             System.out.println("\nÉtat final de la réservation avec retry :");
             System.out.println("ID : " + r.getId());
@@ -251,4 +312,118 @@ public class ConcurrentReservationSimulator {
             System.out.println("Version : " + r.getVersion());
         });
     }
+
+    private static void simulateHotReservationContention(Long reservationId) throws InterruptedException {
+        OptimisticLockingRetryHandler retryHandler =
+                new OptimisticLockingRetryHandler(reservationService, 5, contentionDetector);
+
+        // Plusieurs threads modifient la même réservation en boucle
+        int threadCount = 6;
+        int updatesPerThread = 5;
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 1; t <= threadCount; t++) {
+            final int threadNumber = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    latch.await();
+                    for (int i = 1; i <= updatesPerThread; i++) {
+                        final int updateNumber = i;
+                        boolean success = retryHandler.executeWithRetry(reservationId, r -> {
+                            r.setMotif("Modification " + updateNumber + " par Thread " + threadNumber);
+
+                            // Simuler un traitement court
+                            try {
+                                Thread.sleep(50);
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                            }
+                        });
+
+                        if (!success) {
+                            System.out.println("Thread " + threadNumber + " : Échec de la modification " + updateNumber);
+                        }
+                    }
+                } catch (Exception e) {
+                    System.out.println("Thread " + threadNumber + " : Exception finale : " + e.getMessage());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        // Libération du latch pour que tous les threads commencent en même temps
+        latch.countDown();
+
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        reservationService.findById(reservationId).ifPresent(r -> {
+            System.out.println("\nÉtat final de la réservation chaude :");
+            System.out.println("Motif : " + r.getMotif());
+            System.out.println("Version : " + r.getVersion());
+        });
+    }
+
+    private static void simulateIdempotentRetry(Long reservationId) throws InterruptedException {
+        Reservation existante = reservationService.findById(reservationId).get();
+        String idempotencyKey = UUID.randomUUID().toString();
+
+        // Le client envoie deux fois la même requête (timeout puis renvoi) avec la même clé
+        Reservation[] resultats = new Reservation[2];
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < 2; t++) {
+            final int envoi = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    latch.await();
+                    Reservation reservation = new Reservation(
+                            LocalDateTime.now().plusDays(2).withHour(14).withMinute(0),
+                            LocalDateTime.now().plusDays(2).withHour(16).withMinute(0),
+                            "Formation"
+                    );
+                    reservation.setSalle(existante.getSalle());
+                    reservation.setUtilisateur(existante.getUtilisateur());
+                    resultats[envoi] = reservationService.save(reservation, idempotencyKey);
+                    System.out.println("Envoi " + (envoi + 1) + " : Réservation ID " + resultats[envoi].getId());
+                } catch (Exception e) {
+                    System.out.println("Envoi " + (envoi + 1) + " : Exception : " + e.getMessage());
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        // Un renvoi tardif est servi par le cache, sans transaction
+        Reservation rejeu = new Reservation(
+                LocalDateTime.now().plusDays(2).withHour(14).withMinute(0),
+                LocalDateTime.now().plusDays(2).withHour(16).withMinute(0),
+                "Formation"
+        );
+        rejeu.setSalle(existante.getSalle());
+        rejeu.setUtilisateur(existante.getUtilisateur());
+        Reservation resultatRejeu = reservationService.save(rejeu, idempotencyKey);
+        System.out.println("Renvoi tardif : Réservation ID " + resultatRejeu.getId());
+
+        // Chaque rejeu reçoit sa propre copie : la modifier ne change pas le résultat d'origine
+        resultatRejeu.setMotif("Modifié par le client");
+        System.out.println("Nouveau rejeu : motif = " + reservationService.save(rejeu, idempotencyKey).getMotif());
+
+        // Réutiliser la clé pour une autre opération est refusé
+        try {
+            reservationService.update(existante, idempotencyKey);
+        } catch (IllegalArgumentException e) {
+            System.out.println("Clé réutilisée pour une mise à jour : " + e.getMessage());
+        }
+        System.out.println("Nombre total de réservations : " + reservationService.findAll().size());
+    }
 }
\ No newline at end of file
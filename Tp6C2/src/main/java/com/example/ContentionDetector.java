@@ -0,0 +1,183 @@
+package com.example;
+
+import java.io.PrintStream;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+// Détecte les entités "chaudes" (trop de conflits optimistes) sur une fenêtre glissante.
+// Les conflits sont comptés dans un count-min sketch par tranche de temps : la mémoire
+// reste bornée quel que soit le nombre de réservations ou de salles.
+public class ContentionDetector {
+
+    private static final int DEPTH = 4;
+    private static final int WIDTH = 512;
+    // Au-delà, une entité supplémentaire reste en optimiste (le sketch ne distingue plus assez)
+    private static final int MAX_HOT_ENTITIES = WIDTH;
+    private static final long[] SEEDS = {
+            0x9E3779B97F4A7C15L, 0xC2B2AE3D27D4EB4FL, 0x165667B19E3779F9L, 0xD6E8FEB86659FD93L
+    };
+
+    private final int bucketCount;
+    private final long bucketMillis;
+    private final int hotThreshold;
+    private final int coolThreshold;
+
+    // Une tranche = un sketch DEPTH x WIDTH, étiqueté par son numéro de tranche
+    private final AtomicLongArray[] buckets;
+    private final AtomicLongArray bucketSlots;
+
+    // Entités actuellement en mode pessimiste (hystérésis entre hotThreshold et coolThreshold)
+    private final Set<String> hotEntities = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder switchesToPessimistic = new LongAdder();
+    private final LongAdder switchesToOptimistic = new LongAdder();
+    private final LongAdder optimisticExecutions = new LongAdder();
+    private final LongAdder pessimisticExecutions = new LongAdder();
+    private final LongAdder conflicts = new LongAdder();
+
+    public ContentionDetector() {
+        this(10, TimeUnit.SECONDS.toMillis(1), 3, 1);
+    }
+
+    public ContentionDetector(int bucketCount, long bucketMillis, int hotThreshold, int coolThreshold) {
+        this.bucketCount = bucketCount;
+        this.bucketMillis = bucketMillis;
+        this.hotThreshold = hotThreshold;
+        this.coolThreshold = coolThreshold;
+        this.buckets = new AtomicLongArray[bucketCount];
+        this.bucketSlots = new AtomicLongArray(bucketCount);
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new AtomicLongArray(DEPTH * WIDTH);
+            bucketSlots.set(i, -1);
+        }
+    }
+
+    public void recordConflict(Class<?> entityClass, Object id) {
+        conflicts.increment();
+        String key = key(entityClass, id);
+        AtomicLongArray bucket = currentBucket();
+        for (int row = 0; row < DEPTH; row++) {
+            bucket.incrementAndGet(row * WIDTH + index(key, row));
+        }
+
+        sweepCooledEntities();
+
+        if (estimate(key) >= hotThreshold && hotEntities.size() < MAX_HOT_ENTITIES && hotEntities.add(key)) {
+            switchesToPessimistic.increment();
+            System.out.println("Contention : " + key + " passe en verrouillage pessimiste");
+        }
+    }
+
+    public boolean isHot(Class<?> entityClass, Object id) {
+        String key = key(entityClass, id);
+        if (!hotEntities.contains(key)) {
+            return false;
+        }
+        return !coolDown(key);
+    }
+
+    // Entités chaudes qui ne sont plus modifiées : elles refroidissent sans attendre un nouvel appel
+    private void sweepCooledEntities() {
+        for (String key : hotEntities) {
+            coolDown(key);
+        }
+    }
+
+    private boolean coolDown(String key) {
+        if (estimate(key) < coolThreshold && hotEntities.remove(key)) {
+            switchesToOptimistic.increment();
+            System.out.println("Contention : " + key + " revient au verrouillage optimiste");
+            return true;
+        }
+        return false;
+    }
+
+    public void recordExecution(boolean pessimistic) {
+        if (pessimistic) {
+            pessimisticExecutions.increment();
+        } else {
+            optimisticExecutions.increment();
+        }
+    }
+
+    // Estimation (par excès) du nombre de conflits de l'entité sur la fenêtre
+    long estimate(String key) {
+        long currentSlot = System.currentTimeMillis() / bucketMillis;
+        long min = Long.MAX_VALUE;
+        for (int row = 0; row < DEPTH; row++) {
+            int cell = row * WIDTH + index(key, row);
+            long sum = 0;
+            for (int i = 0; i < bucketCount; i++) {
+                if (currentSlot - bucketSlots.get(i) < bucketCount) {
+                    sum += buckets[i].get(cell);
+                }
+            }
+            min = Math.min(min, sum);
+        }
+        return min;
+    }
+
+    private AtomicLongArray currentBucket() {
+        long slot = System.currentTimeMillis() / bucketMillis;
+        int i = (int) (slot % bucketCount);
+        long previous = bucketSlots.get(i);
+        if (previous != slot && bucketSlots.compareAndSet(i, previous, slot)) {
+            // Tranche expirée : on la recycle (un incrément concurrent peut être perdu, c'est une estimation)
+            for (int cell = 0; cell < DEPTH * WIDTH; cell++) {
+                buckets[i].set(cell, 0);
+            }
+        }
+        return buckets[i];
+    }
+
+    private static String key(Class<?> entityClass, Object id) {
+        return entityClass.getSimpleName() + "#" + id;
+    }
+
+    private static int index(String key, int row) {
+        long x = key.hashCode() * SEEDS[row];
+        x ^= x >>> 33;
+        x *= 0xFF51AFD7ED558CCDL;
+        x ^= x >>> 33;
+        return (int) ((x & Long.MAX_VALUE) % WIDTH);
+    }
+
+    public int getHotEntityCount() {
+        sweepCooledEntities();
+        return hotEntities.size();
+    }
+
+    public long getSwitchesToPessimistic() {
+        return switchesToPessimistic.sum();
+    }
+
+    public long getSwitchesToOptimistic() {
+        return switchesToOptimistic.sum();
+    }
+
+    public long getOptimisticExecutions() {
+        return optimisticExecutions.sum();
+    }
+
+    public long getPessimisticExecutions() {
+        return pessimisticExecutions.sum();
+    }
+
+    public long getConflicts() {
+        return conflicts.sum();
+    }
+
+    public void printMetrics(PrintStream out) {
+        out.println("\n=== Métriques de contention ===");
+        sweepCooledEntities();
+        out.println("Conflits optimistes       : " + getConflicts());
+        out.println("Entités chaudes           : " + getHotEntityCount() + " " + hotEntities);
+        out.println("Passages en pessimiste    : " + getSwitchesToPessimistic());
+        out.println("Retours en optimiste      : " + getSwitchesToOptimistic());
+        out.println("Exécutions optimistes     : " + getOptimisticExecutions());
+        out.println("Exécutions pessimistes    : " + getPessimisticExecutions());
+    }
+}
@@ -1,9 +1,12 @@
 package com.example;
 
 import com.example.model.Reservation;
+import com.example.model.Salle;
 import com.example.service.ReservationService;
 
+import javax.persistence.LockModeType;
 import javax.persistence.OptimisticLockException;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.function.Consumer;
 
@@ -11,18 +14,29 @@ public class OptimisticLockingRetryHandler {
 
     private final ReservationService reservationService;
     private final int maxRetries;
+    // Partagé entre tous les handlers du service : un détecteur par handler ne verrait
+    // jamais assez de conflits pour basculer en pessimiste
+    private final ContentionDetector contentionDetector;
 
-    public OptimisticLockingRetryHandler(ReservationService reservationService, int maxRetries) {
+    public OptimisticLockingRetryHandler(ReservationService reservationService, int maxRetries,
+                                         ContentionDetector contentionDetector) {
         this.reservationService = reservationService;
         this.maxRetries = maxRetries;
+        this.contentionDetector = Objects.requireNonNull(contentionDetector, "contentionDetector");
     }
 
     public boolean executeWithRetry(Long reservationId, Consumer<Reservation> operation) {
         int attempts = 0;
+        Long salleId = null;
 
         while (attempts < maxRetries) {
             attempts++;
             try {
+                // Entité chaude : le verrouillage pessimiste coûte moins cher que les retries
+                if (contentionDetector.isHot(Reservation.class, reservationId)) {
+                    return executePessimistic(reservationId, operation, attempts);
+                }
+
                 Optional<Reservation> reservationOpt = reservationService.findById(reservationId);
                 if (!reservationOpt.isPresent()) {
                     System.out.println("Réservation non trouvée !");
@@ -30,19 +44,39 @@ public class OptimisticLockingRetryHandler {
                 }
 
                 Reservation reservation = reservationOpt.get();
+                salleId = reservation.getSalle().getId();
                 System.out.println("Tentative " + attempts + " : Réservation récupérée, version = " + reservation.getVersion());
 
+                // La salle peut être chaude même si la réservation ne l'est pas
+                if (contentionDetector.isHot(Salle.class, salleId)) {
+                    return executePessimistic(reservationId, operation, attempts);
+                }
+
                 // Appliquer l'opération sur la réservation
                 operation.accept(reservation);
 
                 // Mettre à jour la réservation
+                contentionDetector.recordExecution(false);
                 reservationService.update(reservation);
 
                 System.out.println("Opération réussie après " + attempts + " tentative(s) !");
                 return true;
 
-            } catch (OptimisticLockException e) {
+            } catch (Exception e) {
+                if (!isOptimisticLockConflict(e)) {
+                    System.out.println("Tentative " + attempts + " : Erreur - " + e.getMessage());
+                    if (attempts >= maxRetries) {
+                        System.out.println("Nombre maximum de tentatives atteint.");
+                        return false;
+                    }
+                    continue;
+                }
+
                 System.out.println("Tentative " + attempts + " : Conflit de verrouillage optimiste détecté !");
+                contentionDetector.recordConflict(Reservation.class, reservationId);
+                if (salleId != null) {
+                    contentionDetector.recordConflict(Salle.class, salleId);
+                }
 
                 if (attempts >= maxRetries) {
                     System.out.println("Nombre maximum de tentatives atteint. Abandon de l'opération.");
@@ -56,14 +90,31 @@ public class OptimisticLockingRetryHandler {
                     Thread.currentThread().interrupt();
                     throw new RuntimeException("Interruption pendant l'attente", ie);
                 }
-            } catch (Exception e) {
-                System.out.println("Tentative " + attempts + " : Erreur - " + e.getMessage());
-                if (attempts >= maxRetries) {
-                    System.out.println("Nombre maximum de tentatives atteint.");
-                    return false;
-                }
             }
         }
         return false;
     }
+
+    // Un conflit détecté au flush/commit arrive enveloppé dans une RollbackException
+    private static boolean isOptimisticLockConflict(Throwable e) {
+        for (Throwable cause = e; cause != null; cause = cause.getCause()) {
+            if (cause instanceof OptimisticLockException) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private boolean executePessimistic(Long reservationId, Consumer<Reservation> operation, int attempts) {
+        System.out.println("Tentative " + attempts + " : Verrouillage pessimiste (entité chaude)");
+        contentionDetector.recordExecution(true);
+
+        if (!reservationService.update(reservationId, operation, LockModeType.PESSIMISTIC_WRITE)) {
+            System.out.println("Réservation non trouvée !");
+            return false;
+        }
+
+        System.out.println("Opération réussie après " + attempts + " tentative(s) !");
+        return true;
+    }
 }
\ No newline at end of file
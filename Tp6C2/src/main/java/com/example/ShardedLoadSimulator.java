@@ -0,0 +1,174 @@
+package com.example;
+
+import com.example.model.Reservation;
+import com.example.model.Salle;
+import com.example.model.Utilisateur;
+import com.example.service.ShardedReservationService;
+
+import javax.persistence.EntityManager;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Charge de réservations sur 1, 2, 4... shards H2 locaux pour mesurer le passage à l'échelle.
+// Tous les shards tournent dans cette JVM et partagent ses cœurs avec le travail d'Hibernate :
+// la mesure ne montre un gain que si la machine a des cœurs libres.
+// Usage : ShardedLoadSimulator [nombreDeShards...]
+public class ShardedLoadSimulator {
+
+    private static final int SITE_COUNT = 8;
+    private static final int SALLES_PER_SITE = 5;
+    private static final int THREAD_COUNT = 8;
+    private static final int BOOKINGS_PER_THREAD = 250;
+    private static final int RUNS_PER_CONFIG = 3;
+
+    public static void main(String[] args) throws InterruptedException {
+        int[] shardCounts = args.length > 0 ? new int[args.length] : new int[]{1, 2, 4};
+        for (int i = 0; i < args.length; i++) {
+            shardCounts[i] = Integer.parseInt(args[i]);
+        }
+
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("hibernate.show_sql", "false");
+        properties.put("hibernate.format_sql", "false");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        System.out.println("Cœurs disponibles : " + cores);
+
+        // Chauffe non mesurée : sinon la première configuration paie le démarrage à froid de la JVM
+        int maxShards = Arrays.stream(shardCounts).max().orElse(1);
+        System.out.println("Chauffe de la JVM (non mesurée)...");
+        for (int run = 0; run < RUNS_PER_CONFIG; run++) {
+            try (ShardedReservationService service =
+                         new ShardedReservationService("optimistic-locking-demo", maxShards, properties)) {
+                runLoad(service);
+            }
+        }
+
+        double[] throughputs = new double[shardCounts.length];
+        for (int i = 0; i < shardCounts.length; i++) {
+            int shardCount = shardCounts[i];
+
+            // Plusieurs exécutions par configuration : on retient la médiane
+            double[] runs = new double[RUNS_PER_CONFIG];
+            for (int run = 0; run < RUNS_PER_CONFIG; run++) {
+                try (ShardedReservationService service =
+                             new ShardedReservationService("optimistic-locking-demo", shardCount, properties)) {
+                    runs[run] = runLoad(service);
+                }
+            }
+            Arrays.sort(runs);
+            throughputs[i] = runs[RUNS_PER_CONFIG / 2];
+        }
+
+        // Accélération par rapport à la configuration avec le moins de shards
+        int baselineIndex = 0;
+        for (int i = 1; i < shardCounts.length; i++) {
+            if (shardCounts[i] < shardCounts[baselineIndex]) {
+                baselineIndex = i;
+            }
+        }
+
+        System.out.println("\n=== Passage à l'échelle par nombre de shards (" + cores + " cœur(s), médiane de "
+                + RUNS_PER_CONFIG + " exécutions) ===");
+        System.out.println(String.format("%6s %14s %11s", "Shards", "Réservations/s", "Accélération"));
+        for (int i = 0; i < shardCounts.length; i++) {
+            System.out.println(String.format("%6d %14.0f %10.2fx",
+                    shardCounts[i], throughputs[i], throughputs[i] / throughputs[baselineIndex]));
+        }
+    }
+
+    private static double runLoad(ShardedReservationService service) throws InterruptedException {
+        List<Salle> salles = new ArrayList<>();
+        List<Utilisateur> utilisateurs = new ArrayList<>();
+        for (int s = 1; s <= SITE_COUNT; s++) {
+            initSite(service, "Campus-" + s, salles, utilisateurs);
+        }
+
+        LocalDateTime base = LocalDateTime.now().plusDays(1).withHour(8).withMinute(0).withSecond(0).withNano(0);
+        AtomicInteger failures = new AtomicInteger();
+        CountDownLatch latch = new CountDownLatch(1);
+        List<Thread> threads = new ArrayList<>();
+
+        for (int t = 0; t < THREAD_COUNT; t++) {
+            final int threadIndex = t;
+            Thread thread = new Thread(() -> {
+                try {
+                    latch.await();
+                    for (int i = 0; i < BOOKINGS_PER_THREAD; i++) {
+                        int salleIndex = ThreadLocalRandom.current().nextInt(salles.size());
+
+                        // Créneau unique par (thread, itération) : pas de chevauchement attendu
+                        LocalDateTime debut = base.plusHours((long) (threadIndex * BOOKINGS_PER_THREAD + i) * 2);
+                        Reservation reservation = new Reservation(debut, debut.plusHours(1), "Charge");
+                        reservation.setSalle(salles.get(salleIndex));
+                        reservation.setUtilisateur(utilisateurs.get(salleIndex / SALLES_PER_SITE));
+
+                        try {
+                            service.save(reservation);
+                        } catch (Exception e) {
+                            failures.incrementAndGet();
+                        }
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+
+        long start = System.nanoTime();
+        latch.countDown();
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+
+        int bookings = THREAD_COUNT * BOOKINGS_PER_THREAD;
+        double throughput = bookings / seconds;
+
+        // Lectures multi-shards (scatter-gather)
+        int total = service.findAll().size();
+        int libres = service.findAvailableSalles(base, base.plusHours(1), 20).size();
+
+        System.out.println(String.format(
+                "%d shard(s) : %d réservations en %.2f s (%.0f/s), %d échecs, findAll = %d, salles libres = %d",
+                service.getShardCount(), bookings, seconds, throughput, failures.get(), total, libres));
+        return throughput;
+    }
+
+    private static void initSite(ShardedReservationService service, String site,
+                                 List<Salle> salles, List<Utilisateur> utilisateurs) {
+        EntityManager em = service.getEntityManagerFactory(site).createEntityManager();
+        try {
+            em.getTransaction().begin();
+
+            // Les utilisateurs sont créés dans le shard du site : ils ne peuvent réserver que là (clé étrangère locale)
+            Utilisateur utilisateur = new Utilisateur("Charge", site, "charge@" + site.toLowerCase() + ".example.com");
+            em.persist(utilisateur);
+            utilisateurs.add(utilisateur);
+
+            for (int i = 1; i <= SALLES_PER_SITE; i++) {
+                Salle salle = new Salle(site + "-S" + i, 10 * i, site);
+                em.persist(salle);
+                salles.add(salle);
+            }
+
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package com.example;
+
+import com.example.model.Reservation;
+import com.example.model.Salle;
+import com.example.model.Utilisateur;
+import com.example.service.ReservationService;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import java.io.PrintStream;
+import java.time.LocalDateTime;
+import java.util.concurrent.TimeUnit;
+
+// Démarrage d'un nœud : phase de chauffe synthétique avant de se déclarer prêt, avec mesure
+// des temps jusqu'à la première réservation et jusqu'au régime établi. Les réservations
+// reçues ensuite sont servies avec des plans de requêtes compilés et du code déjà optimisé par le JIT.
+public class StartupWarmUp {
+
+    private static final int BATCH_SIZE = 20;
+    private static final int MAX_BATCHES = 60;
+    // Régime établi : la moyenne des STABLE_BATCHES derniers lots ne s'améliore plus de plus de
+    // STEADY_STATE_TOLERANCE par rapport aux STABLE_BATCHES lots précédents
+    private static final int STABLE_BATCHES = 5;
+    private static final double STEADY_STATE_TOLERANCE = 0.15;
+
+    private final EntityManagerFactory emf;
+    private final ReservationService reservationService;
+    private final long startNanos;
+
+    private long bootstrapNanos;
+    private long firstBookingNanos = -1;
+    private long steadyStateNanos = -1;
+    private long readyNanos;
+    private int bookings;
+    private double steadyStateLatencyMillis;
+
+    public StartupWarmUp(EntityManagerFactory emf, ReservationService reservationService, long startNanos) {
+        this.emf = emf;
+        this.reservationService = reservationService;
+        this.startNanos = startNanos;
+    }
+
+    public void warmUp() {
+        bootstrapNanos = System.nanoTime() - startNanos;
+
+        Salle salle = new Salle("Salle de chauffe", 1);
+        Utilisateur utilisateur = new Utilisateur("Chauffe", "Nœud", "warmup@example.com");
+        persist(salle, utilisateur);
+
+        try {
+            // Créneaux très lointains pour ne jamais gêner de vraies réservations
+            LocalDateTime base = LocalDateTime.now().plusYears(10).withHour(0).withMinute(0).withSecond(0).withNano(0);
+            double[] batchMillis = new double[MAX_BATCHES];
+
+            for (int batch = 0; batch < MAX_BATCHES; batch++) {
+                long batchStart = System.nanoTime();
+                for (int i = 0; i < BATCH_SIZE; i++) {
+                    LocalDateTime debut = base.plusHours((long) bookings * 2);
+                    Reservation reservation = new Reservation(debut, debut.plusHours(1), "Chauffe");
+                    reservation.setSalle(salle);
+                    reservation.setUtilisateur(utilisateur);
+
+                    if (reservationService.isSalleAvailable(salle.getId(), reservation)) {
+                        reservationService.save(reservation);
+                        if (firstBookingNanos < 0) {
+                            firstBookingNanos = System.nanoTime() - startNanos;
+                        }
+                    }
+                    bookings++;
+                }
+
+                batchMillis[batch] = (System.nanoTime() - batchStart) / 1_000_000.0 / BATCH_SIZE;
+
+                // Deux fenêtres consécutives de plusieurs lots : un seul lot est trop bruité
+                if (batch + 1 >= 2 * STABLE_BATCHES) {
+                    double recent = average(batchMillis, batch + 1 - STABLE_BATCHES, batch + 1);
+                    double previous = average(batchMillis, batch + 1 - 2 * STABLE_BATCHES, batch + 1 - STABLE_BATCHES);
+                    if (recent > previous * (1 - STEADY_STATE_TOLERANCE)) {
+                        steadyStateNanos = System.nanoTime() - startNanos;
+                        steadyStateLatencyMillis = recent;
+                        break;
+                    }
+                }
+            }
+        } finally {
+            cleanUp(salle, utilisateur);
+        }
+
+        readyNanos = System.nanoTime() - startNanos;
+        System.out.println("Nœud prêt après " + TimeUnit.NANOSECONDS.toMillis(readyNanos) + " ms");
+    }
+
+    private static double average(double[] values, int from, int to) {
+        double sum = 0;
+        for (int i = from; i < to; i++) {
+            sum += values[i];
+        }
+        return sum / (to - from);
+    }
+
+    private void persist(Salle salle, Utilisateur utilisateur) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.persist(salle);
+            em.persist(utilisateur);
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    private void cleanUp(Salle salle, Utilisateur utilisateur) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            em.createQuery("DELETE FROM Reservation r WHERE r.salle.id = :salleId")
+                    .setParameter("salleId", salle.getId())
+                    .executeUpdate();
+            em.remove(em.find(Salle.class, salle.getId()));
+            em.remove(em.find(Utilisateur.class, utilisateur.getId()));
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    public void printReport(PrintStream out) {
+        out.println("\n=== Démarrage du nœud ===");
+        out.println("EntityManagerFactory prête : " + toMillis(bootstrapNanos) + " ms");
+        if (firstBookingNanos >= 0) {
+            out.println("Première réservation       : " + toMillis(firstBookingNanos) + " ms");
+        } else {
+            out.println("Première réservation       : aucune");
+        }
+        if (steadyStateNanos >= 0) {
+            out.println("Régime établi              : " + toMillis(steadyStateNanos) + " ms"
+                    + String.format(" (%.2f ms/réservation)", steadyStateLatencyMillis));
+        } else {
+            out.println("Régime établi              : non atteint après " + bookings + " réservations");
+        }
+        out.println("Nœud prêt                  : " + toMillis(readyNanos) + " ms");
+        out.println("Réservations de chauffe    : " + bookings);
+    }
+
+    private static long toMillis(long nanos) {
+        return TimeUnit.NANOSECONDS.toMillis(nanos);
+    }
+}
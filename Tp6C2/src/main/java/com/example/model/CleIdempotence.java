@@ -0,0 +1,58 @@
+package com.example.model;
+
+import javax.persistence.*;
+import java.time.LocalDateTime;
+
+// Clé d'idempotence fournie par le client : une requête rejouée renvoie la réservation d'origine
+@Entity
+@Table(name = "cles_idempotence")
+public class CleIdempotence {
+
+    @Id
+    @Column(length = 100)
+    private String cle;
+
+    @Column(nullable = false, length = 20)
+    private String operation;
+
+    @Column(name = "reservation_id", nullable = false)
+    private Long reservationId;
+
+    @Column(name = "date_creation", nullable = false)
+    private LocalDateTime dateCreation;
+
+    public CleIdempotence() {}
+
+    public CleIdempotence(String cle, String operation, Long reservationId) {
+        this.cle = cle;
+        this.operation = operation;
+        this.reservationId = reservationId;
+        this.dateCreation = LocalDateTime.now();
+    }
+
+    public String getCle() {
+        return cle;
+    }
+
+    public String getOperation() {
+        return operation;
+    }
+
+    public Long getReservationId() {
+        return reservationId;
+    }
+
+    public LocalDateTime getDateCreation() {
+        return dateCreation;
+    }
+
+    @Override
+    public String toString() {
+        return "CleIdempotence{" +
+                "cle='" + cle + '\'' +
+                ", operation='" + operation + '\'' +
+                ", reservationId=" + reservationId +
+                ", dateCreation=" + dateCreation +
+                '}';
+    }
+}
@@ -40,6 +40,17 @@ public class Reservation {
         this.motif = motif;
     }
 
+    // Copie détachée (version comprise), utilisée pour rejouer un résultat sans le partager
+    public Reservation(Reservation other) {
+        this.id = other.id;
+        this.dateDebut = other.dateDebut;
+        this.dateFin = other.dateFin;
+        this.motif = other.motif;
+        this.utilisateur = other.utilisateur;
+        this.salle = other.salle;
+        this.version = other.version;
+    }
+
     // Getters et Setters
     public Long getId() {
         return id;
@@ -19,6 +19,10 @@ public class Salle {
     @Column(length = 500)
     private String description;
 
+    // Site (campus) de la salle : clé de sharding
+    @Column(length = 50)
+    private String site;
+
     public Salle() {}
 
     public Salle(String nom, Integer capacite) {
@@ -26,6 +30,11 @@ public class Salle {
         this.capacite = capacite;
     }
 
+    public Salle(String nom, Integer capacite, String site) {
+        this(nom, capacite);
+        this.site = site;
+    }
+
     public Long getId() {
         return id;
     }
@@ -58,6 +67,14 @@ public class Salle {
         this.description = description;
     }
 
+    public String getSite() {
+        return site;
+    }
+
+    public void setSite(String site) {
+        this.site = site;
+    }
+
     @Override
     public String toString() {
         return "Salle{" +
@@ -65,6 +82,7 @@ public class Salle {
                 ", nom='" + nom + '\'' +
                 ", capacite=" + capacite +
                 ", description='" + description + '\'' +
+                ", site='" + site + '\'' +
                 '}';
     }
 }
@@ -0,0 +1,193 @@
+package com.example.profiling;
+
+import org.hibernate.boot.registry.StandardServiceRegistry;
+import org.hibernate.boot.registry.StandardServiceRegistryBuilder;
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.engine.jdbc.connections.spi.ConnectionProvider;
+import org.hibernate.service.spi.Configurable;
+import org.hibernate.service.spi.Stoppable;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.CallableStatement;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.HashMap;
+import java.util.Map;
+
+// Enveloppe le ConnectionProvider que Hibernate choisirait par défaut et chronomètre ses Statement JDBC
+public class ProfilingConnectionProvider implements ConnectionProvider, Configurable, Stoppable {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient QueryProfiler profiler;
+    private transient StandardServiceRegistry delegateRegistry;
+    private transient ConnectionProvider delegate;
+
+    public ProfilingConnectionProvider(QueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    @SuppressWarnings({"rawtypes", "unchecked"})
+    public void configure(Map configurationValues) {
+        // Registre séparé, sans ce provider : Hibernate y construit son provider standard (pool JDBC)
+        Map<Object, Object> settings = new HashMap<>(configurationValues);
+        settings.remove(AvailableSettings.CONNECTION_PROVIDER);
+        delegateRegistry = new StandardServiceRegistryBuilder().applySettings(settings).build();
+        delegate = delegateRegistry.getService(ConnectionProvider.class);
+    }
+
+    @Override
+    public void stop() {
+        if (delegateRegistry != null) {
+            StandardServiceRegistryBuilder.destroy(delegateRegistry);
+        }
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        Connection connection = delegate.getConnection();
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new ConnectionHandler(connection));
+    }
+
+    @Override
+    public void closeConnection(Connection connection) throws SQLException {
+        // Le pool doit récupérer la connexion réelle, pas le proxy
+        if (Proxy.isProxyClass(connection.getClass())
+                && Proxy.getInvocationHandler(connection) instanceof ConnectionHandler) {
+            connection = ((ConnectionHandler) Proxy.getInvocationHandler(connection)).target;
+        }
+        delegate.closeConnection(connection);
+    }
+
+    @Override
+    public boolean supportsAggressiveRelease() {
+        return delegate.supportsAggressiveRelease();
+    }
+
+    @Override
+    @SuppressWarnings("rawtypes")
+    public boolean isUnwrappableAs(Class unwrapType) {
+        return unwrapType.isInstance(this) || delegate.isUnwrappableAs(unwrapType);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public <T> T unwrap(Class<T> unwrapType) {
+        if (unwrapType.isInstance(this)) {
+            return (T) this;
+        }
+        return delegate.unwrap(unwrapType);
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getCause();
+        }
+    }
+
+    private class ConnectionHandler implements InvocationHandler {
+        private final Connection target;
+
+        ConnectionHandler(Connection target) {
+            this.target = target;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            Object result = ProfilingConnectionProvider.invoke(target, method, args);
+            switch (method.getName()) {
+                case "prepareStatement":
+                    return wrapStatement(result, PreparedStatement.class, (String) args[0]);
+                case "prepareCall":
+                    return wrapStatement(result, CallableStatement.class, (String) args[0]);
+                case "createStatement":
+                    return wrapStatement(result, Statement.class, null);
+                default:
+                    return result;
+            }
+        }
+
+        private Object wrapStatement(Object statement, Class<?> type, String sql) {
+            return Proxy.newProxyInstance(
+                    type.getClassLoader(),
+                    new Class<?>[]{type},
+                    new StatementHandler(statement, sql));
+        }
+    }
+
+    private class StatementHandler implements InvocationHandler {
+        private final Object target;
+        private final String sql;
+
+        StatementHandler(Object target, String sql) {
+            this.target = target;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            String name = method.getName();
+            if (name.startsWith("execute")) {
+                // Statement simple : le SQL est passé à execute*, sinon celui du PreparedStatement
+                String executedSql = args != null && args.length > 0 && args[0] instanceof String
+                        ? (String) args[0] : sql;
+                long start = System.nanoTime();
+                try {
+                    Object result = ProfilingConnectionProvider.invoke(target, method, args);
+                    return result instanceof ResultSet ? wrapResultSet((ResultSet) result, proxy, executedSql) : result;
+                } finally {
+                    profiler.recordStatement(executedSql, System.nanoTime() - start);
+                }
+            }
+
+            Object result = ProfilingConnectionProvider.invoke(target, method, args);
+            if ("getResultSet".equals(name) && result != null) {
+                return wrapResultSet((ResultSet) result, proxy, sql);
+            }
+            return result;
+        }
+
+        private ResultSet wrapResultSet(ResultSet resultSet, Object statement, String executedSql) {
+            return (ResultSet) Proxy.newProxyInstance(
+                    ResultSet.class.getClassLoader(),
+                    new Class<?>[]{ResultSet.class},
+                    new ResultSetHandler(resultSet, statement, executedSql));
+        }
+    }
+
+    private class ResultSetHandler implements InvocationHandler {
+        private final ResultSet target;
+        private final Object statement;
+        private final String sql;
+
+        ResultSetHandler(ResultSet target, Object statement, String sql) {
+            this.target = target;
+            this.statement = statement;
+            this.sql = sql;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            if ("getStatement".equals(method.getName())) {
+                return statement;
+            }
+            Object result = ProfilingConnectionProvider.invoke(target, method, args);
+            if ("next".equals(method.getName()) && Boolean.TRUE.equals(result) && sql != null) {
+                profiler.recordRow(sql);
+            }
+            return result;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.profiling;
+
+import org.hibernate.EmptyInterceptor;
+import org.hibernate.type.Type;
+
+import java.io.Serializable;
+
+// Compte les entités chargées pour l'appel de service en cours
+public class ProfilingInterceptor extends EmptyInterceptor {
+
+    private static final long serialVersionUID = 1L;
+
+    private final transient QueryProfiler profiler;
+
+    public ProfilingInterceptor(QueryProfiler profiler) {
+        this.profiler = profiler;
+    }
+
+    @Override
+    public boolean onLoad(Object entity, Serializable id, Object[] state, String[] propertyNames, Type[] types) {
+        profiler.recordEntityLoad();
+        return false;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.profiling;
+
+import com.example.model.Reservation;
+import com.example.model.Salle;
+import com.example.service.ReservationService;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+// Décorateur qui attribue les requêtes SQL à chaque appel du service
+public class ProfilingReservationService implements ReservationService {
+
+    private final ReservationService delegate;
+    private final QueryProfiler profiler;
+
+    public ProfilingReservationService(ReservationService delegate, QueryProfiler profiler) {
+        this.delegate = delegate;
+        this.profiler = profiler;
+    }
+
+    @Override
+    public Reservation save(Reservation reservation) {
+        return profile("save", () -> delegate.save(reservation));
+    }
+
+    @Override
+    public Reservation save(Reservation reservation, String idempotencyKey) {
+        return profile("save(idempotent)", () -> delegate.save(reservation, idempotencyKey));
+    }
+
+    @Override
+    public Optional<Reservation> findById(Long id) {
+        return profile("findById", () -> delegate.findById(id));
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        return profile("findAll", delegate::findAll);
+    }
+
+    @Override
+    public void update(Reservation reservation) {
+        profile("update", () -> {
+            delegate.update(reservation);
+            return null;
+        });
+    }
+
+    @Override
+    public void update(Reservation reservation, String idempotencyKey) {
+        profile("update(idempotent)", () -> {
+            delegate.update(reservation, idempotencyKey);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean update(Long reservationId, Consumer<Reservation> operation, LockModeType lockMode) {
+        return profile("update(" + lockMode + ")", () -> delegate.update(reservationId, operation, lockMode));
+    }
+
+    @Override
+    public void delete(Reservation reservation) {
+        profile("delete", () -> {
+            delegate.delete(reservation);
+            return null;
+        });
+    }
+
+    @Override
+    public boolean isSalleAvailable(Long salleId, Reservation reservation) {
+        return profile("isSalleAvailable", () -> delegate.isSalleAvailable(salleId, reservation));
+    }
+
+    @Override
+    public List<Salle> findAvailableSalles(LocalDateTime dateDebut, LocalDateTime dateFin, int capaciteMin) {
+        return profile("findAvailableSalles", () -> delegate.findAvailableSalles(dateDebut, dateFin, capaciteMin));
+    }
+
+    private <T> T profile(String operation, Supplier<T> call) {
+        profiler.beginCall(operation);
+        try {
+            return call.get();
+        } finally {
+            profiler.endCall();
+        }
+    }
+}
@@ -0,0 +1,221 @@
+package com.example.profiling;
+
+import org.hibernate.cfg.AvailableSettings;
+import org.hibernate.stat.Statistics;
+
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+public class QueryProfiler {
+
+    private static final int SQL_DISPLAY_LENGTH = 90;
+
+    private final long slowQueryThresholdNanos;
+    private final Map<String, QueryStats> queryStats = new ConcurrentHashMap<>();
+    private final Map<String, CallStats> callStats = new ConcurrentHashMap<>();
+
+    // Appel de service en cours sur le thread courant (pour attribuer les requêtes)
+    private final ThreadLocal<CallContext> currentCall = new ThreadLocal<>();
+
+    public QueryProfiler(long slowQueryThresholdMillis) {
+        this.slowQueryThresholdNanos = TimeUnit.MILLISECONDS.toNanos(slowQueryThresholdMillis);
+    }
+
+    // Propriétés à passer à Persistence.createEntityManagerFactory pour activer le profilage
+    public Map<String, Object> hibernateProperties() {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put(AvailableSettings.SHOW_SQL, "false");
+        properties.put(AvailableSettings.FORMAT_SQL, "false");
+        properties.put(AvailableSettings.GENERATE_STATISTICS, "true");
+        properties.put(AvailableSettings.LOG_SESSION_METRICS, "false");
+        properties.put(AvailableSettings.CONNECTION_PROVIDER, new ProfilingConnectionProvider(this));
+        properties.put(AvailableSettings.INTERCEPTOR, new ProfilingInterceptor(this));
+        return properties;
+    }
+
+    // Oublie les mesures déjà faites (par exemple celles d'une phase de chauffe)
+    public void reset() {
+        queryStats.clear();
+        callStats.clear();
+    }
+
+    public void beginCall(String operation) {
+        currentCall.set(new CallContext(operation, currentCall.get()));
+    }
+
+    public void endCall() {
+        CallContext context = currentCall.get();
+        if (context == null) {
+            return;
+        }
+        long elapsed = System.nanoTime() - context.startNanos;
+        callStats.computeIfAbsent(context.operation, k -> new CallStats()).record(elapsed, context);
+
+        if (context.parent != null) {
+            currentCall.set(context.parent);
+        } else {
+            currentCall.remove();
+        }
+    }
+
+    void recordStatement(String sql, long elapsedNanos) {
+        queryStats.computeIfAbsent(sql, k -> new QueryStats()).record(elapsedNanos, slowQueryThresholdNanos);
+
+        CallContext context = currentCall.get();
+        if (context != null) {
+            context.statements++;
+        }
+
+        if (elapsedNanos > slowQueryThresholdNanos) {
+            System.out.println(String.format("[SLOW] %.2f ms%s : %s",
+                    toMillis(elapsedNanos),
+                    context != null ? " (" + context.operation + ")" : "",
+                    shorten(sql)));
+        }
+    }
+
+    void recordRow(String sql) {
+        QueryStats stats = queryStats.get(sql);
+        if (stats != null) {
+            stats.rows.increment();
+        }
+
+        CallContext context = currentCall.get();
+        if (context != null) {
+            context.rows++;
+        }
+    }
+
+    void recordEntityLoad() {
+        CallContext context = currentCall.get();
+        if (context != null) {
+            context.entitiesLoaded++;
+        }
+    }
+
+    public void printSummary(PrintStream out, Statistics statistics) {
+        out.println("\n=== Profil des requêtes SQL (seuil lent : "
+                + TimeUnit.NANOSECONDS.toMillis(slowQueryThresholdNanos) + " ms) ===");
+        out.println(String.format("%8s %10s %10s %10s %8s %6s  %s",
+                "Exéc.", "Moy. (ms)", "Max (ms)", "Total (ms)", "Lignes", "Lentes", "SQL"));
+
+        List<Map.Entry<String, QueryStats>> queries = new ArrayList<>(queryStats.entrySet());
+        queries.sort(Comparator.comparingLong(
+                (Map.Entry<String, QueryStats> e) -> e.getValue().totalNanos.sum()).reversed());
+        for (Map.Entry<String, QueryStats> entry : queries) {
+            QueryStats stats = entry.getValue();
+            long count = stats.count.sum();
+            out.println(String.format("%8d %10.3f %10.3f %10.3f %8d %6d  %s",
+                    count,
+                    toMillis(stats.totalNanos.sum()) / Math.max(count, 1),
+                    toMillis(stats.maxNanos.get()),
+                    toMillis(stats.totalNanos.sum()),
+                    stats.rows.sum(),
+                    stats.slow.sum(),
+                    normalize(entry.getKey())));
+        }
+
+        out.println("\n=== Profil par appel de ReservationService ===");
+        out.println(String.format("%-26s %8s %10s %10s %10s %10s %10s",
+                "Opération", "Appels", "Moy. (ms)", "Max (ms)", "Req./appel", "Lignes", "Entités"));
+        for (Map.Entry<String, CallStats> entry : callStats.entrySet()) {
+            CallStats stats = entry.getValue();
+            long calls = Math.max(stats.calls.sum(), 1);
+            out.println(String.format("%-26s %8d %10.3f %10.3f %10.2f %10d %10d",
+                    entry.getKey(),
+                    stats.calls.sum(),
+                    toMillis(stats.totalNanos.sum()) / calls,
+                    toMillis(stats.maxNanos.get()),
+                    (double) stats.statements.sum() / calls,
+                    stats.rows.sum(),
+                    stats.entitiesLoaded.sum()));
+        }
+
+        if (statistics != null) {
+            out.println("\n=== Statistiques Hibernate ===");
+            out.println("Sessions ouvertes        : " + statistics.getSessionOpenCount());
+            out.println("Transactions             : " + statistics.getTransactionCount());
+            out.println("Requêtes exécutées       : " + statistics.getQueryExecutionCount());
+            out.println("Requête la plus lente    : " + statistics.getQueryExecutionMaxTime()
+                    + " ms - " + statistics.getQueryExecutionMaxTimeQueryString());
+            out.println("Entités chargées         : " + statistics.getEntityLoadCount());
+            out.println("Entités insérées         : " + statistics.getEntityInsertCount());
+            out.println("Entités mises à jour     : " + statistics.getEntityUpdateCount());
+            out.println("Conflits optimistes      : " + statistics.getOptimisticFailureCount());
+        }
+    }
+
+    private static double toMillis(long nanos) {
+        return nanos / 1_000_000.0;
+    }
+
+    private static String normalize(String sql) {
+        return sql.replaceAll("\\s+", " ").trim();
+    }
+
+    // SQL tronqué pour les lignes [SLOW] ; le récapitulatif affiche la requête complète
+    private static String shorten(String sql) {
+        String normalized = normalize(sql);
+        if (normalized.length() <= SQL_DISPLAY_LENGTH) {
+            return normalized;
+        }
+        return normalized.substring(0, SQL_DISPLAY_LENGTH - 3) + "...";
+    }
+
+    private static class CallContext {
+        private final String operation;
+        private final CallContext parent;
+        private final long startNanos = System.nanoTime();
+        private long statements;
+        private long rows;
+        private long entitiesLoaded;
+
+        CallContext(String operation, CallContext parent) {
+            this.operation = operation;
+            this.parent = parent;
+        }
+    }
+
+    private static class QueryStats {
+        private final LongAdder count = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder slow = new LongAdder();
+
+        void record(long elapsedNanos, long slowThresholdNanos) {
+            count.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            if (elapsedNanos > slowThresholdNanos) {
+                slow.increment();
+            }
+        }
+    }
+
+    private static class CallStats {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder totalNanos = new LongAdder();
+        private final AtomicLong maxNanos = new AtomicLong();
+        private final LongAdder statements = new LongAdder();
+        private final LongAdder rows = new LongAdder();
+        private final LongAdder entitiesLoaded = new LongAdder();
+
+        void record(long elapsedNanos, CallContext context) {
+            calls.increment();
+            totalNanos.add(elapsedNanos);
+            maxNanos.accumulateAndGet(elapsedNanos, Math::max);
+            statements.add(context.statements);
+            rows.add(context.rows);
+            entitiesLoaded.add(context.entitiesLoaded);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.example.service;
+
+import com.example.model.Reservation;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+
+// Cache borné des résultats par clé d'idempotence, avec expiration (TTL).
+// Devant la table cles_idempotence : un rejeu récent ne touche pas la base.
+// Sans verrou global : pendant une avalanche de rejeux, les lectures ne s'attendent pas.
+public class IdempotencyCache {
+
+    private final int maxSize;
+    private final long ttlNanos;
+    private final Map<String, Result> entries = new ConcurrentHashMap<>();
+
+    // Ordre d'insertion : les entrées les plus anciennes (et donc les premières expirées) sont en tête.
+    // Une entrée remplacée ou retirée reste dans la file jusqu'à ce qu'elle arrive en tête.
+    private final Queue<Result> insertionOrder = new ConcurrentLinkedQueue<>();
+
+    public IdempotencyCache() {
+        this(10_000, TimeUnit.MINUTES.toMillis(10));
+    }
+
+    public IdempotencyCache(int maxSize, long ttlMillis) {
+        this.maxSize = maxSize;
+        this.ttlNanos = TimeUnit.MILLISECONDS.toNanos(ttlMillis);
+    }
+
+    public Result get(String key) {
+        Result result = entries.get(key);
+        if (result != null && isExpired(result)) {
+            entries.remove(key, result);
+            return null;
+        }
+        return result;
+    }
+
+    public Result put(String key, String operation, Reservation reservation) {
+        Result result = new Result(key, operation, reservation);
+        entries.put(key, result);
+        insertionOrder.add(result);
+        evict();
+        return result;
+    }
+
+    // Oublie les résultats d'une réservation supprimée
+    public void removeReservation(Long reservationId) {
+        entries.values().removeIf(result -> reservationId.equals(result.getReservationId()));
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    // Retire les entrées expirées puis les plus anciennes au-delà de maxSize ; seule la tête de file est examinée
+    private void evict() {
+        Result eldest;
+        while ((eldest = insertionOrder.peek()) != null
+                && (isExpired(eldest) || entries.get(eldest.key) != eldest || entries.size() > maxSize)) {
+            if (insertionOrder.remove(eldest)) {
+                entries.remove(eldest.key, eldest);
+            }
+        }
+    }
+
+    private boolean isExpired(Result result) {
+        return System.nanoTime() - result.createdNanos > ttlNanos;
+    }
+
+    // Résultat d'origine figé : chaque rejeu reçoit sa propre copie de la réservation
+    public static final class Result {
+        private final String key;
+        private final String operation;
+        private final Reservation snapshot;
+        private final long createdNanos = System.nanoTime();
+
+        private Result(String key, String operation, Reservation reservation) {
+            this.key = key;
+            this.operation = operation;
+            this.snapshot = new Reservation(reservation);
+        }
+
+        public String getOperation() {
+            return operation;
+        }
+
+        public Long getReservationId() {
+            return snapshot.getId();
+        }
+
+        public Reservation copyReservation() {
+            return new Reservation(snapshot);
+        }
+    }
+}
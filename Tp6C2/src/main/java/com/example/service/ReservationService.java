@@ -1,14 +1,23 @@
 package com.example.service;
 
 import com.example.model.Reservation;
+import com.example.model.Salle;
+
+import javax.persistence.LockModeType;
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public interface ReservationService {
     Reservation save(Reservation reservation);
+    Reservation save(Reservation reservation, String idempotencyKey);
     Optional<Reservation> findById(Long id);
     List<Reservation> findAll();
     void update(Reservation reservation);
+    void update(Reservation reservation, String idempotencyKey);
+    boolean update(Long reservationId, Consumer<Reservation> operation, LockModeType lockMode);
     void delete(Reservation reservation);
     boolean isSalleAvailable(Long salleId, Reservation reservation);
+    List<Salle> findAvailableSalles(LocalDateTime dateDebut, LocalDateTime dateFin, int capaciteMin);
 }
\ No newline at end of file
@@ -1,21 +1,60 @@
 package com.example.service;
 
+import com.example.model.CleIdempotence;
 import com.example.model.Reservation;
 import com.example.model.Salle;
 
 import javax.persistence.EntityManager;
 import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.PersistenceException;
 import javax.persistence.TypedQuery;
 import java.time.LocalDateTime;
 import java.util.List;
 import java.util.Optional;
+import java.util.function.Consumer;
 
 public class ReservationServiceImpl implements ReservationService {
 
+    private static final String SAVE_OPERATION = "save";
+    private static final String UPDATE_OPERATION = "update";
+
+    private static final String FIND_ALL_JPQL = "SELECT r FROM Reservation r";
+
+    private static final String SALLE_AVAILABLE_JPQL = "SELECT COUNT(r) FROM Reservation r " +
+            "WHERE r.salle.id = :salleId " +
+            "AND r.dateDebut < :end " +
+            "AND r.dateFin > :start";
+
+    private static final String SALLE_AVAILABLE_FOR_UPDATE_JPQL = "SELECT COUNT(r) FROM Reservation r " +
+            "WHERE r.salle.id = :salleId " +
+            "AND r.id != :reservationId " +
+            "AND r.dateDebut < :end " +
+            "AND r.dateFin > :start";
+
+    private static final String AVAILABLE_SALLES_JPQL = "SELECT s FROM Salle s " +
+            "WHERE s.capacite >= :capaciteMin " +
+            "AND NOT EXISTS (SELECT r FROM Reservation r " +
+            "WHERE r.salle = s " +
+            "AND r.dateDebut < :end " +
+            "AND r.dateFin > :start) " +
+            "ORDER BY s.nom";
+
+    private static final String DELETE_KEYS_FOR_RESERVATION_JPQL =
+            "DELETE FROM CleIdempotence c WHERE c.reservationId = :reservationId";
+
+    private static final String DELETE_KEY_JPQL = "DELETE FROM CleIdempotence c WHERE c.cle = :cle";
+
     private final EntityManagerFactory emf;
+    private final IdempotencyCache idempotencyCache;
 
     public ReservationServiceImpl(EntityManagerFactory emf) {
+        this(emf, new IdempotencyCache());
+    }
+
+    public ReservationServiceImpl(EntityManagerFactory emf, IdempotencyCache idempotencyCache) {
         this.emf = emf;
+        this.idempotencyCache = idempotencyCache;
     }
 
     @Override
@@ -42,6 +81,58 @@ public class ReservationServiceImpl implements ReservationService {
         }
     }
 
+    @Override
+    public Reservation save(Reservation reservation, String idempotencyKey) {
+        requireIdempotencyKey(idempotencyKey);
+
+        // Requête rejouée : on renvoie le résultat d'origine sans transaction
+        IdempotencyCache.Result original = findIdempotentResult(idempotencyKey, SAVE_OPERATION, null);
+        if (original != null) {
+            return original.copyReservation();
+        }
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+
+            if (!isSalleAvailable(reservation.getSalle().getId(), reservation)) {
+                em.getTransaction().rollback();
+
+                // Le conflit vient peut-être du premier envoi de ce même client, validé entre-temps
+                original = findIdempotentResult(idempotencyKey, SAVE_OPERATION, null);
+                if (original != null) {
+                    return original.copyReservation();
+                }
+                throw new RuntimeException("La salle n'est pas disponible pour cette période");
+            }
+
+            em.persist(reservation);
+            em.persist(new CleIdempotence(idempotencyKey, SAVE_OPERATION, reservation.getId()));
+            em.getTransaction().commit();
+
+            idempotencyCache.put(idempotencyKey, SAVE_OPERATION, reservation);
+            return reservation;
+        } catch (PersistenceException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+
+            // Clé déjà enregistrée par un envoi concurrent de la même requête
+            original = findIdempotentResult(idempotencyKey, SAVE_OPERATION, null);
+            if (original != null) {
+                return original.copyReservation();
+            }
+            throw e;
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
     @Override
     public Optional<Reservation> findById(Long id) {
         EntityManager em = emf.createEntityManager();
@@ -57,7 +148,7 @@ public class ReservationServiceImpl implements ReservationService {
     public List<Reservation> findAll() {
         EntityManager em = emf.createEntityManager();
         try {
-            TypedQuery<Reservation> query = em.createQuery("SELECT r FROM Reservation r", Reservation.class);
+            TypedQuery<Reservation> query = em.createQuery(FIND_ALL_JPQL, Reservation.class);
             return query.getResultList();
         } finally {
             em.close();
@@ -87,6 +178,83 @@ public class ReservationServiceImpl implements ReservationService {
         }
     }
 
+    @Override
+    public void update(Reservation reservation, String idempotencyKey) {
+        requireIdempotencyKey(idempotencyKey);
+
+        if (findIdempotentResult(idempotencyKey, UPDATE_OPERATION, reservation.getId()) != null) {
+            return;
+        }
+
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+
+            if (!isSalleAvailableForUpdate(reservation.getSalle().getId(), reservation)) {
+                throw new RuntimeException("La salle n'est pas disponible pour cette période");
+            }
+
+            Reservation merged = em.merge(reservation);
+            em.persist(new CleIdempotence(idempotencyKey, UPDATE_OPERATION, reservation.getId()));
+            em.getTransaction().commit();
+
+            idempotencyCache.put(idempotencyKey, UPDATE_OPERATION, merged);
+        } catch (PersistenceException e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+
+            // Conflit (clé ou version) causé par le premier envoi de cette requête : déjà appliquée
+            if (findIdempotentResult(idempotencyKey, UPDATE_OPERATION, reservation.getId()) != null) {
+                return;
+            }
+            throw e;
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    @Override
+    public boolean update(Long reservationId, Consumer<Reservation> operation, LockModeType lockMode) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+
+            Reservation reservation = em.find(Reservation.class, reservationId, lockMode);
+            if (reservation == null) {
+                em.getTransaction().rollback();
+                return false;
+            }
+
+            // En mode pessimiste, la salle est aussi verrouillée pour sérialiser ses modifications
+            Long salleId = reservation.getSalle().getId();
+            if (lockMode == LockModeType.PESSIMISTIC_WRITE) {
+                em.find(Salle.class, salleId, lockMode);
+            }
+
+            operation.accept(reservation);
+
+            if (!isSalleAvailableForUpdate(salleId, reservation)) {
+                throw new RuntimeException("La salle n'est pas disponible pour cette période");
+            }
+
+            em.getTransaction().commit();
+            return true;
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
     @Override
     public void delete(Reservation reservation) {
         EntityManager em = emf.createEntityManager();
@@ -96,7 +264,14 @@ public class ReservationServiceImpl implements ReservationService {
                 reservation = em.merge(reservation);
             }
             em.remove(reservation);
+
+            // Les clés d'idempotence de la réservation sont libérées avec elle
+            em.createQuery(DELETE_KEYS_FOR_RESERVATION_JPQL)
+                    .setParameter("reservationId", reservation.getId())
+                    .executeUpdate();
             em.getTransaction().commit();
+
+            idempotencyCache.removeReservation(reservation.getId());
         } catch (Exception e) {
             if (em.getTransaction().isActive()) {
                 em.getTransaction().rollback();
@@ -111,12 +286,7 @@ public class ReservationServiceImpl implements ReservationService {
     public boolean isSalleAvailable(Long salleId, Reservation reservation) {
         EntityManager em = emf.createEntityManager();
         try {
-            String jpql = "SELECT COUNT(r) FROM Reservation r " +
-                    "WHERE r.salle.id = :salleId " +
-                    "AND r.dateDebut < :end " +
-                    "AND r.dateFin > :start";
-
-            TypedQuery<Long> query = em.createQuery(jpql, Long.class);
+            TypedQuery<Long> query = em.createQuery(SALLE_AVAILABLE_JPQL, Long.class);
             query.setParameter("salleId", salleId);
             query.setParameter("start", reservation.getDateDebut());
             query.setParameter("end", reservation.getDateFin());
@@ -128,16 +298,84 @@ public class ReservationServiceImpl implements ReservationService {
         }
     }
 
-    private boolean isSalleAvailableForUpdate(Long salleId, Reservation reservation) {
+    @Override
+    public List<Salle> findAvailableSalles(LocalDateTime dateDebut, LocalDateTime dateFin, int capaciteMin) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            TypedQuery<Salle> query = em.createQuery(AVAILABLE_SALLES_JPQL, Salle.class);
+            query.setParameter("capaciteMin", capaciteMin);
+            query.setParameter("start", dateDebut);
+            query.setParameter("end", dateFin);
+            return query.getResultList();
+        } finally {
+            em.close();
+        }
+    }
+
+    private static void requireIdempotencyKey(String idempotencyKey) {
+        if (idempotencyKey == null) {
+            throw new IllegalArgumentException("La clé d'idempotence est obligatoire");
+        }
+    }
+
+    // reservationId : réservation visée par la requête (null pour une création)
+    private IdempotencyCache.Result findIdempotentResult(String idempotencyKey, String operation, Long reservationId) {
+        IdempotencyCache.Result cached = idempotencyCache.get(idempotencyKey);
+        if (cached != null) {
+            checkSameRequest(idempotencyKey, cached.getOperation(), cached.getReservationId(), operation, reservationId);
+            return cached;
+        }
+
         EntityManager em = emf.createEntityManager();
         try {
-            String jpql = "SELECT COUNT(r) FROM Reservation r " +
-                    "WHERE r.salle.id = :salleId " +
-                    "AND r.id != :reservationId " +
-                    "AND r.dateDebut < :end " +
-                    "AND r.dateFin > :start";
+            CleIdempotence cle = em.find(CleIdempotence.class, idempotencyKey);
+            if (cle == null) {
+                return null;
+            }
+            checkSameRequest(idempotencyKey, cle.getOperation(), cle.getReservationId(), operation, reservationId);
+
+            Reservation reservation = em.find(Reservation.class, cle.getReservationId());
+            if (reservation == null) {
+                // Réservation supprimée sans passer par delete() : la clé est libérée de la même façon,
+                // sinon la requête retenterait d'insérer une clé déjà présente
+                releaseIdempotencyKey(em, idempotencyKey);
+                return null;
+            }
+            return idempotencyCache.put(idempotencyKey, cle.getOperation(), reservation);
+        } finally {
+            em.close();
+        }
+    }
 
-            TypedQuery<Long> query = em.createQuery(jpql, Long.class);
+    private static void releaseIdempotencyKey(EntityManager em, String idempotencyKey) {
+        try {
+            em.getTransaction().begin();
+            em.createQuery(DELETE_KEY_JPQL)
+                    .setParameter("cle", idempotencyKey)
+                    .executeUpdate();
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        }
+    }
+
+    // Une clé réutilisée pour une autre opération ou une autre réservation n'est pas un rejeu
+    private static void checkSameRequest(String idempotencyKey, String storedOperation, Long storedReservationId,
+                                         String operation, Long reservationId) {
+        if (!storedOperation.equals(operation)
+                || (reservationId != null && !reservationId.equals(storedReservationId))) {
+            throw new IllegalArgumentException(
+                    "La clé d'idempotence " + idempotencyKey + " a déjà été utilisée pour une autre requête");
+        }
+    }
+
+    private boolean isSalleAvailableForUpdate(Long salleId, Reservation reservation) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            TypedQuery<Long> query = em.createQuery(SALLE_AVAILABLE_FOR_UPDATE_JPQL, Long.class);
             query.setParameter("salleId", salleId);
             query.setParameter("reservationId", reservation.getId());
             query.setParameter("start", reservation.getDateDebut());
@@ -0,0 +1,214 @@
+package com.example.service;
+
+import com.example.model.Reservation;
+import com.example.model.Salle;
+import com.example.model.Utilisateur;
+
+import javax.persistence.EntityManager;
+import javax.persistence.EntityManagerFactory;
+import javax.persistence.LockModeType;
+import javax.persistence.Persistence;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+// Répartit les réservations sur plusieurs bases (une EntityManagerFactory par shard).
+// Chaque salle est placée selon son site ; les identifiants de chaque shard démarrent
+// à index * SHARD_ID_RANGE, ce qui permet de retrouver le shard d'une entité par son ID.
+// Les utilisateurs ne sont ni routés ni répliqués : la clé étrangère utilisateur_id est locale
+// au shard, un utilisateur ne peut donc réserver que des salles des sites de son propre shard.
+public class ShardedReservationService implements ReservationService, AutoCloseable {
+
+    public static final long SHARD_ID_RANGE = 1_000_000_000_000L;
+
+    private static final String[] TABLES = {"utilisateurs", "salles", "reservations"};
+
+    private final List<EntityManagerFactory> factories = new ArrayList<>();
+    private final List<ReservationService> shards = new ArrayList<>();
+    private final ExecutorService executor;
+
+    public ShardedReservationService(String persistenceUnitName, int shardCount, Map<String, Object> properties) {
+        for (int i = 0; i < shardCount; i++) {
+            Map<String, Object> shardProperties = new HashMap<>(properties);
+            shardProperties.put("javax.persistence.jdbc.url", "jdbc:h2:mem:shard" + i + ";DB_CLOSE_DELAY=-1");
+
+            EntityManagerFactory emf = Persistence.createEntityManagerFactory(persistenceUnitName, shardProperties);
+            restartIdentities(emf, i * SHARD_ID_RANGE + 1);
+            factories.add(emf);
+            shards.add(new ReservationServiceImpl(emf));
+        }
+
+        executor = Executors.newFixedThreadPool(shardCount, r -> {
+            Thread thread = new Thread(r, "shard-reader");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void restartIdentities(EntityManagerFactory emf, long firstId) {
+        EntityManager em = emf.createEntityManager();
+        try {
+            em.getTransaction().begin();
+            for (String table : TABLES) {
+                em.createNativeQuery("ALTER TABLE " + table + " ALTER COLUMN id RESTART WITH " + firstId)
+                        .executeUpdate();
+            }
+            em.getTransaction().commit();
+        } catch (Exception e) {
+            if (em.getTransaction().isActive()) {
+                em.getTransaction().rollback();
+            }
+            throw e;
+        } finally {
+            em.close();
+        }
+    }
+
+    public int getShardCount() {
+        return shards.size();
+    }
+
+    public int shardIndexForSite(String site) {
+        return site == null ? 0 : Math.floorMod(site.hashCode(), shards.size());
+    }
+
+    public int shardIndexForId(Long id) {
+        if (!isRoutable(id)) {
+            throw new IllegalArgumentException("Aucun shard pour l'identifiant " + id);
+        }
+        return (int) (id / SHARD_ID_RANGE);
+    }
+
+    private boolean isRoutable(Long id) {
+        return id != null && id >= 0 && id / SHARD_ID_RANGE < shards.size();
+    }
+
+    // Accès direct à la base d'un site (création des salles et utilisateurs)
+    public EntityManagerFactory getEntityManagerFactory(String site) {
+        return factories.get(shardIndexForSite(site));
+    }
+
+    public EntityManagerFactory getEntityManagerFactory(int shardIndex) {
+        return factories.get(shardIndex);
+    }
+
+    private ReservationService shardForSalle(Salle salle) {
+        if (salle.getId() != null) {
+            return shards.get(shardIndexForId(salle.getId()));
+        }
+        return shards.get(shardIndexForSite(salle.getSite()));
+    }
+
+    private ReservationService shardForId(Long id) {
+        return shards.get(shardIndexForId(id));
+    }
+
+    // La réservation, sa salle et son utilisateur doivent être dans le même shard
+    private ReservationService shardForReservation(Reservation reservation) {
+        ReservationService shard = shardForSalle(reservation.getSalle());
+        Utilisateur utilisateur = reservation.getUtilisateur();
+        if (utilisateur != null && utilisateur.getId() != null && shardForId(utilisateur.getId()) != shard) {
+            throw new IllegalArgumentException("L'utilisateur " + utilisateur.getId()
+                    + " n'est pas dans le shard du site " + reservation.getSalle().getSite());
+        }
+        return shard;
+    }
+
+    @Override
+    public Reservation save(Reservation reservation) {
+        return shardForReservation(reservation).save(reservation);
+    }
+
+    @Override
+    public Reservation save(Reservation reservation, String idempotencyKey) {
+        return shardForReservation(reservation).save(reservation, idempotencyKey);
+    }
+
+    @Override
+    public Optional<Reservation> findById(Long id) {
+        // Même contrat que ReservationServiceImpl : un identifiant inconnu n'est pas une erreur
+        if (!isRoutable(id)) {
+            return Optional.empty();
+        }
+        return shardForId(id).findById(id);
+    }
+
+    @Override
+    public List<Reservation> findAll() {
+        return scatterGather(ReservationService::findAll);
+    }
+
+    @Override
+    public void update(Reservation reservation) {
+        shardForId(reservation.getId()).update(reservation);
+    }
+
+    @Override
+    public void update(Reservation reservation, String idempotencyKey) {
+        shardForId(reservation.getId()).update(reservation, idempotencyKey);
+    }
+
+    @Override
+    public boolean update(Long reservationId, Consumer<Reservation> operation, LockModeType lockMode) {
+        if (!isRoutable(reservationId)) {
+            return false;
+        }
+        return shardForId(reservationId).update(reservationId, operation, lockMode);
+    }
+
+    @Override
+    public void delete(Reservation reservation) {
+        shardForId(reservation.getId()).delete(reservation);
+    }
+
+    @Override
+    public boolean isSalleAvailable(Long salleId, Reservation reservation) {
+        return shardForId(salleId).isSalleAvailable(salleId, reservation);
+    }
+
+    @Override
+    public List<Salle> findAvailableSalles(LocalDateTime dateDebut, LocalDateTime dateFin, int capaciteMin) {
+        List<Salle> salles = scatterGather(shard -> shard.findAvailableSalles(dateDebut, dateFin, capaciteMin));
+        salles.sort(Comparator.comparing(Salle::getNom));
+        return salles;
+    }
+
+    // Interroge tous les shards en parallèle et fusionne les résultats
+    private <T> List<T> scatterGather(Function<ReservationService, List<T>> query) {
+        List<Future<List<T>>> futures = new ArrayList<>();
+        for (ReservationService shard : shards) {
+            futures.add(executor.submit(() -> query.apply(shard)));
+        }
+
+        List<T> results = new ArrayList<>();
+        for (Future<List<T>> future : futures) {
+            try {
+                results.addAll(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Interruption pendant la lecture des shards", e);
+            } catch (ExecutionException e) {
+                throw new RuntimeException("Erreur lors de la lecture d'un shard", e.getCause());
+            }
+        }
+        return results;
+    }
+
+    @Override
+    public void close() {
+        executor.shutdownNow();
+        for (EntityManagerFactory emf : factories) {
+            emf.close();
+        }
+    }
+}